@@ -0,0 +1,145 @@
+package io.webrocket.kosmonaut;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Public: ChannelCache remembers channels which are known to be open on the
+ * WebRocket backend endpoint, so Client can skip redundant `OC` requests.
+ *
+ * The cache is bounded: when it's full the least recently used channel is
+ * evicted. Every entry expires after the configured time to live, after
+ * which the next openChannel call goes to the server again.
+ *
+ * Examples
+ *
+ * Client c = new Client("wr://token@127.0.0.1:8081/test");
+ * c.setChannelCache(new ChannelCache(1024, 60000));
+ * c.openChannel("room"); // round trip
+ * c.openChannel("room"); // served from the cache
+ *
+ */
+public class ChannelCache {
+    private final int maxSize;
+    private final long ttl;
+    private final LinkedHashMap<String, Long> entries;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    /**
+     * Public: The ChannelCache constructor.
+     *
+     * @param maxSize - Maximum number of channels to remember.
+     * @param ttl - Number of milliseconds an entry stays valid.
+     */
+    public ChannelCache(int maxSize, long ttl){
+        if (maxSize <= 0){
+            throw new IllegalArgumentException("maxSize must be positive");
+        }
+        if (ttl <= 0){
+            throw new IllegalArgumentException("ttl must be positive");
+        }
+        this.maxSize = maxSize;
+        this.ttl = ttl;
+        this.entries = new LinkedHashMap<String, Long>(16, 0.75f, true){
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Long> eldest){
+                if (size() > ChannelCache.this.maxSize){
+                    evictions.incrementAndGet();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Public: Checks whether given channel is known to be open. Expired
+     * entries are dropped on the way.
+     *
+     * @param name - A name of the channel.
+     *
+     * Returns true if the channel is cached and not expired.
+     */
+    public boolean contains(String name){
+        long now = System.currentTimeMillis();
+        synchronized (entries){
+            Long expiresAt = entries.get(name);
+            if (expiresAt != null && expiresAt.longValue() > now){
+                hits.incrementAndGet();
+                return true;
+            }
+            if (expiresAt != null){
+                entries.remove(name);
+                evictions.incrementAndGet();
+            }
+        }
+        misses.incrementAndGet();
+        return false;
+    }
+
+    /**
+     * Public: Marks given channel as open.
+     *
+     * @param name - A name of the channel.
+     */
+    public void put(String name){
+        long expiresAt = System.currentTimeMillis() + ttl;
+        synchronized (entries){
+            entries.put(name, expiresAt);
+        }
+    }
+
+    /**
+     * Public: Forgets given channel, eg. when the server reported that
+     * it doesn't exist anymore.
+     *
+     * @param name - A name of the channel.
+     */
+    public void invalidate(String name){
+        synchronized (entries){
+            entries.remove(name);
+        }
+    }
+
+    /**
+     * Public: Forgets all the channels.
+     */
+    public void clear(){
+        synchronized (entries){
+            entries.clear();
+        }
+    }
+
+    public int size(){
+        synchronized (entries){
+            return entries.size();
+        }
+    }
+
+    public long getHits(){
+        return hits.get();
+    }
+
+    public long getMisses(){
+        return misses.get();
+    }
+
+    public long getEvictions(){
+        return evictions.get();
+    }
+
+    /**
+     * Public: Returns ratio of lookups served from the cache, or 0 if
+     * there were no lookups yet.
+     */
+    public double getHitRate(){
+        long h = hits.get();
+        long total = h + misses.get();
+        return total == 0 ? 0.0 : (double) h / total;
+    }
+}
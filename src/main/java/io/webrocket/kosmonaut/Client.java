@@ -3,6 +3,7 @@ package io.webrocket.kosmonaut;
 import org.json.JSONObject;
 import java.util.HashMap;
 import java.util.ArrayList;
+import java.util.concurrent.Callable;
 
 /**
  * 
@@ -25,11 +26,72 @@ import java.util.ArrayList;
  */
 public class Client extends WRSocket{
     private float REQUEST_TIMEOUT = 5;
+    private ChannelCache channelCache = null;
+    private ConcurrencyLimiter concurrencyLimiter = null;
+    private RequestLanes requestLanes = null;
 
     public Client(String uri){
         super(uri);
     }
 
+    public float getRequestTimeout() {
+        return REQUEST_TIMEOUT;
+    }
+
+    /**
+     * Public: Sets how long to wait for the response, in seconds.
+     *
+     * @param requestTimeout - Number of seconds, 0 waits forever.
+     */
+    public void setRequestTimeout(float requestTimeout) {
+        this.REQUEST_TIMEOUT = requestTimeout;
+    }
+
+    public ChannelCache getChannelCache() {
+        return channelCache;
+    }
+
+    /**
+     * Public: Enables caching of the channels known to be open, so
+     * openChannel doesn't hit the server for each call. Pass null to
+     * disable the cache.
+     *
+     * @param channelCache - The cache to be used.
+     */
+    public void setChannelCache(ChannelCache channelCache) {
+        this.channelCache = channelCache;
+    }
+
+    public ConcurrencyLimiter getConcurrencyLimiter() {
+        return concurrencyLimiter;
+    }
+
+    /**
+     * Public: Enables adaptive limiting of the requests in flight. Requests
+     * over the limit are rejected with the `599` error instead of waiting
+     * for the connection. Pass null to disable the limiter.
+     *
+     * @param concurrencyLimiter - The limiter to be used.
+     */
+    public void setConcurrencyLimiter(ConcurrencyLimiter concurrencyLimiter) {
+        this.concurrencyLimiter = concurrencyLimiter;
+    }
+
+    public RequestLanes getRequestLanes() {
+        return requestLanes;
+    }
+
+    /**
+     * Public: Enables sending requests through separate lanes, so
+     * broadcasts don't hold up access tokens and channel management.
+     * Pass null to send all the requests one by one again.
+     *
+     * @param requestLanes - The lanes to be used.
+     */
+    public void setRequestLanes(RequestLanes requestLanes) {
+        this.requestLanes = requestLanes;
+    }
+
     /**
      * Public: Broadcasts a event with attached data on the specified channel.
      * The data attached to the event must be a hash!
@@ -54,7 +116,11 @@ public class Client extends WRSocket{
         payload.add("BC");
         payload.add(channel);
         payload.add(json.toString());
-        return performRequest(payload);
+        String response = performRequest(payload);
+        if (channelCache != null && isChannelNotFound(response)){
+            channelCache.invalidate(channel);
+        }
+        return response;
     }
 
     /**
@@ -75,10 +141,17 @@ public class Client extends WRSocket{
      * TODO: Raises one of the Kosmonaut::Error inherited exceptions.
      */
     public String openChannel(String name){
+        if (channelCache != null && channelCache.contains(name)){
+            return "0";
+        }
         ArrayList<String> payload = new ArrayList<String>();
         payload.add("OC");
         payload.add(name);
-        return performRequest(payload);
+        String response = performRequest(payload);
+        if (channelCache != null && "0".equals(response)){
+            channelCache.put(name);
+        }
+        return response;
     }
 
     /**
@@ -102,7 +175,11 @@ public class Client extends WRSocket{
         ArrayList<String> payload = new ArrayList<String>();
         payload.add("CC");
         payload.add(name);
-        return performRequest(payload);
+        String response = performRequest(payload);
+        if (channelCache != null && ("0".equals(response) || isChannelNotFound(response))){
+            channelCache.invalidate(name);
+        }
+        return response;
     }
 
     /**
@@ -128,6 +205,14 @@ public class Client extends WRSocket{
         return performRequest(payload);
     }
 
+    /**
+     * Internal: Checks whether given response is the `454 Channel not found`
+     * error.
+     */
+    private boolean isChannelNotFound(String response){
+        return new Error(454).toString().equals(response);
+    }
+
     public String getSocketType(){
         return "req";
     }
@@ -139,17 +224,77 @@ public class Client extends WRSocket{
      * 
      * @param payload
      *
-     * Returns response result if succeed.
+     * Returns response result if succeed, or the `599` error if the
+     * concurrency limiter rejected the request.
      * TODO Raises one of the Kosmonaut::Error inherited exceptions.
      */
-    public synchronized String performRequest(ArrayList<String> payload){
+    public String performRequest(ArrayList<String> payload){
+        ConcurrencyLimiter limiter = this.concurrencyLimiter;
+        if (limiter == null){
+            return sendRequest(payload);
+        }
+        if (!limiter.acquire(priorityOf(payload.get(0)))){
+            return new Error(599).toString();
+        }
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            String response = sendRequest(payload);
+            success = response != null;
+            return response;
+        } finally {
+            limiter.release(System.nanoTime() - start, success);
+        }
+    }
+
+    /**
+     * Internal: Tells how important is the request with given command.
+     * Access tokens are needed to log users in, so they go first; bulk
+     * broadcasts are shed first.
+     */
+    private ConcurrencyLimiter.Priority priorityOf(String cmd){
+        if (cmd.equals("AT")){
+            return ConcurrencyLimiter.Priority.CRITICAL;
+        }
+        if (cmd.equals("BC")){
+            return ConcurrencyLimiter.Priority.BULK;
+        }
+        return ConcurrencyLimiter.Priority.NORMAL;
+    }
+
+    /**
+     * Internal: Sends the request through its lane if lanes are enabled,
+     * or one by one otherwise.
+     */
+    private String sendRequest(final ArrayList<String> payload){
+        RequestLanes lanes = this.requestLanes;
+        if (lanes == null){
+            synchronized (this){
+                return exchange(payload);
+            }
+        }
+        return lanes.execute(RequestLanes.laneOf(payload.get(0)), new Callable<String>() {
+            public String call() {
+                return exchange(payload);
+            }
+        });
+    }
+
+    /**
+     * Internal: Sends the packet over a fresh connection and waits for
+     * the response.
+     */
+    private String exchange(ArrayList<String> payload){
         ArrayList<String> response;
-        this.connect(REQUEST_TIMEOUT);
-        String packet = pack(payload, true);
+        Transport transport = open(REQUEST_TIMEOUT);
+        if (transport == null){
+            return null;
+        }
+        String packet = pack(payload, newIdentity());
         //TODO: Log
-        this.write(packet);
-        response = recv(this.socket);
-        closeSocket();
+        write(transport, packet);
+        response = recv(transport);
+        closeSocket(transport);
         return parseResponse(response);
     }
     
@@ -166,11 +311,14 @@ public class Client extends WRSocket{
      * 0x.. | ... \n | *
      * | \r\n\r\n |
      *
-     * Returns response result if succeed.
+     * Returns response result if succeed, or null if there was no response.
      * Raises one of the Kosmonaut::Error inherited exceptions.
      * @return
      */
     public String parseResponse(ArrayList<String> response){
+        if (response == null || response.isEmpty()){
+            return null;
+        }
         String cmd = response.get(0).toString();
         //TODO: Log
         //Java: Y U NO switch over Strings?
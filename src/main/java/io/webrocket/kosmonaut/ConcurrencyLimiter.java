@@ -0,0 +1,171 @@
+package io.webrocket.kosmonaut;
+
+/**
+ * Public: ConcurrencyLimiter bounds the number of Client requests in flight
+ * (executing or waiting for the connection) and adapts that bound to the
+ * measured round trip time, using the gradient algorithm:
+ *
+ * gradient = max(0.5, min(1.0, minRtt / rtt))
+ * limit = limit * gradient + sqrt(limit)
+ *
+ * While the backend endpoint responds as fast as at its best and at least
+ * half of the limit is in use, the limit grows; once requests start to
+ * queue up the limit shrinks, so callers get rejected fast instead of
+ * piling up behind a slow node. Under light load the limit stays where it
+ * is instead of drifting up to the maximum.
+ *
+ * Part of the limit is reserved for more important requests: BULK
+ * requests are shed first, then NORMAL ones, and CRITICAL requests are
+ * admitted as long as the total limit allows. BULK and NORMAL requests
+ * always get at least one slot, so they keep probing the node even at the
+ * lowest limit, and CRITICAL requests always get one more than NORMAL
+ * ones, even if that goes over a low limit.
+ *
+ * Examples
+ *
+ * Client c = new Client("wr://token@127.0.0.1:8081/test");
+ * c.setConcurrencyLimiter(new ConcurrencyLimiter(1, 20, 64));
+ *
+ */
+public class ConcurrencyLimiter {
+    /**
+     * Public: Importance of the request, used to decide what to shed first.
+     */
+    public enum Priority {
+        CRITICAL, NORMAL, BULK
+    }
+
+    /**
+     * Number of samples after which the minimal RTT is forgotten, so the
+     * limiter follows the node when its baseline latency changes.
+     */
+    private static final int MIN_RTT_RESET_SAMPLES = 500;
+
+    /**
+     * Weight of the new limit when smoothing the estimate.
+     */
+    private static final double SMOOTHING = 0.2;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private double bulkShare = 0.5;
+    private double normalShare = 0.8;
+
+    private double limit;
+    private int inFlight = 0;
+    private long minRtt = Long.MAX_VALUE;
+    private int samples = 0;
+    private long rejected = 0;
+
+    /**
+     * Public: The ConcurrencyLimiter constructor.
+     *
+     * @param minLimit - The lowest limit the estimate can drop to.
+     * @param initialLimit - The limit to start with.
+     * @param maxLimit - The highest limit the estimate can grow to.
+     */
+    public ConcurrencyLimiter(int minLimit, int initialLimit, int maxLimit){
+        if (minLimit < 1 || initialLimit < minLimit || maxLimit < initialLimit){
+            throw new IllegalArgumentException("expected 1 <= minLimit <= initialLimit <= maxLimit");
+        }
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.limit = initialLimit;
+    }
+
+    /**
+     * Public: Sets fractions of the limit available for BULK and NORMAL
+     * requests. CRITICAL requests can always use the whole limit.
+     *
+     * @param bulkShare - Fraction of the limit for BULK requests.
+     * @param normalShare - Fraction of the limit for NORMAL requests.
+     */
+    public synchronized void setShares(double bulkShare, double normalShare){
+        if (bulkShare <= 0 || bulkShare > normalShare || normalShare > 1){
+            throw new IllegalArgumentException("expected 0 < bulkShare <= normalShare <= 1");
+        }
+        this.bulkShare = bulkShare;
+        this.normalShare = normalShare;
+    }
+
+    /**
+     * Public: Tries to admit a request. Never blocks.
+     *
+     * @param priority - Priority of the request.
+     *
+     * Returns true if the request can go on, in which case release must
+     * be called once it's done; false if it should be rejected.
+     */
+    public synchronized boolean acquire(Priority priority){
+        int normal = Math.max(1, (int) (limit * normalShare));
+        int allowed;
+        if (priority == Priority.BULK){
+            allowed = Math.max(1, (int) (limit * bulkShare));
+        } else if (priority == Priority.NORMAL){
+            allowed = normal;
+        } else {
+            allowed = Math.max((int) limit, normal + 1);
+        }
+        if (inFlight >= allowed){
+            rejected++;
+            return false;
+        }
+        inFlight++;
+        return true;
+    }
+
+    /**
+     * Public: Marks admitted request as done and updates the limit.
+     *
+     * @param rtt - Time the request took, in nanoseconds.
+     * @param success - Whether the request got a response. Failed
+     * requests back the limit off instead of being sampled.
+     */
+    public synchronized void release(long rtt, boolean success){
+        int active = inFlight;
+        inFlight--;
+        if (!success){
+            limit = Math.max(minLimit, limit * 0.9);
+            return;
+        }
+        update(rtt, active);
+    }
+
+    /**
+     * Internal: Updates the limit with a new RTT sample.
+     *
+     * @param rtt - Time the request took, in nanoseconds.
+     * @param active - Number of requests in flight, including the sampled one.
+     */
+    private void update(long rtt, int active){
+        if (++samples >= MIN_RTT_RESET_SAMPLES){
+            samples = 0;
+            minRtt = Long.MAX_VALUE;
+        }
+        if (rtt <= 0){
+            return;
+        }
+        if (rtt < minRtt){
+            minRtt = rtt;
+        }
+        double gradient = Math.max(0.5, Math.min(1.0, (double) minRtt / rtt));
+        double newLimit = limit * gradient + Math.sqrt(limit);
+        newLimit = limit * (1 - SMOOTHING) + newLimit * SMOOTHING;
+        if (newLimit > limit && active < limit / 2){
+            return;
+        }
+        limit = Math.max(minLimit, Math.min(maxLimit, newLimit));
+    }
+
+    public synchronized int getLimit(){
+        return (int) limit;
+    }
+
+    public synchronized int getInFlight(){
+        return inFlight;
+    }
+
+    public synchronized long getRejected(){
+        return rejected;
+    }
+}
@@ -0,0 +1,113 @@
+package io.webrocket.kosmonaut;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Public: DuplicateFilter drops messages delivered more than once, eg.
+ * when the worker reconnects and the backend endpoint sends the in-flight
+ * messages again.
+ *
+ * IDs seen within the time window are remembered in a fixed number of
+ * entries, split into shards with their own locks so concurrent checks
+ * rarely contend. Each shard evicts its oldest ID when full, so memory
+ * stays bounded no matter the message rate; an ID evicted before its
+ * window passed won't be recognized as a duplicate anymore.
+ *
+ * Examples
+ *
+ * worker.setDuplicateFilter(new DuplicateFilter(new MessageIdExtractor() {
+ *     public String extract(Message message) {
+ *         return message.getData().get("id");
+ *     }
+ * }, 100000, 60000));
+ *
+ */
+public class DuplicateFilter {
+    private static final int SHARDS = 16;
+
+    private final MessageIdExtractor extractor;
+    private final long window;
+    private final int shardCapacity;
+    private final Shard[] shards = new Shard[SHARDS];
+    private final AtomicLong duplicates = new AtomicLong();
+
+    /**
+     * Public: The DuplicateFilter constructor.
+     *
+     * @param extractor - Gets IDs of the messages.
+     * @param maxEntries - Maximum number of IDs to remember.
+     * @param window - Number of milliseconds an ID is remembered for.
+     */
+    public DuplicateFilter(MessageIdExtractor extractor, int maxEntries, long window){
+        if (extractor == null){
+            throw new IllegalArgumentException("extractor is required");
+        }
+        if (maxEntries <= 0 || window <= 0){
+            throw new IllegalArgumentException("maxEntries and window must be positive");
+        }
+        this.extractor = extractor;
+        this.window = window;
+        this.shardCapacity = Math.max(1, (maxEntries + SHARDS - 1) / SHARDS);
+        for (int i = 0; i < SHARDS; i++){
+            shards[i] = new Shard();
+        }
+    }
+
+    /**
+     * Public: Checks whether given message has been already seen within
+     * the window, and remembers it otherwise.
+     *
+     * @param message - The message to be checked.
+     *
+     * Returns true if the message is a duplicate.
+     */
+    public boolean isDuplicate(Message message){
+        String id = extractor.extract(message);
+        if (id == null){
+            return false;
+        }
+        int hash = id.hashCode();
+        hash ^= (hash >>> 16);
+        Shard shard = shards[hash & (SHARDS - 1)];
+        if (shard.seen(id, System.currentTimeMillis())){
+            duplicates.incrementAndGet();
+            return true;
+        }
+        return false;
+    }
+
+    public long getDuplicates(){
+        return duplicates.get();
+    }
+
+    /**
+     * Internal: Part of the remembered IDs, kept in the order they were
+     * first seen.
+     */
+    private class Shard {
+        private final LinkedHashMap<String, Long> seenAt = new LinkedHashMap<String, Long>();
+
+        synchronized boolean seen(String id, long now){
+            Long at = seenAt.get(id);
+            if (at != null && at.longValue() + window > now){
+                return true;
+            }
+            if (at != null){
+                seenAt.remove(id);
+            }
+            Iterator<Map.Entry<String, Long>> oldest = seenAt.entrySet().iterator();
+            while (oldest.hasNext()){
+                Map.Entry<String, Long> entry = oldest.next();
+                if (entry.getValue().longValue() + window > now && seenAt.size() < shardCapacity){
+                    break;
+                }
+                oldest.remove();
+            }
+            seenAt.put(id, now);
+            return false;
+        }
+    }
+}
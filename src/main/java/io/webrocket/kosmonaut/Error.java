@@ -33,6 +33,8 @@ public class Error {
 			return "Internal error";
 		case 598:
 			return "End Of File error";
+		case 599:
+			return "Request rejected, too many requests in flight";
 		default:
 			return null;
 		}
@@ -0,0 +1,373 @@
+package io.webrocket.kosmonaut;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Public: LoadGenerator is a command line tool driving sustained load
+ * against the WebRocket backend endpoint, used to size deployments and
+ * compare releases.
+ *
+ * Broadcasts are sent open loop at the fixed rate: each request has its
+ * intended start time, and the latency is measured from that time rather
+ * than from the moment it was actually sent, so a stalled node shows up
+ * in the percentiles instead of silently lowering the rate (coordinated
+ * omission). Optional workers consume the broadcasted messages.
+ *
+ * Usage
+ *
+ * java io.webrocket.kosmonaut.LoadGenerator --uri wr://token@127.0.0.1:8081/test
+ *     [--rate 100] [--duration 60] [--senders 4] [--workers 0]
+ *     [--channel load] [--interval 5]
+ *
+ * Every interval a line with the number of sent requests, throughput,
+ * latency percentiles, received messages and error codes is printed,
+ * followed by the summary for the whole run. The last interval is cut
+ * short if the duration isn't a multiple of it.
+ *
+ */
+public class LoadGenerator {
+    /**
+     * Number of milliseconds to wait for the workers to connect.
+     */
+    private static final int WORKERS_TIMEOUT = 10000;
+
+    private String uri;
+    private int rate = 100;
+    private int duration = 60;
+    private int senders = 4;
+    private int workers = 0;
+    private String channel = "load";
+    private int interval = 5;
+
+    private final AtomicLong sequence = new AtomicLong();
+    private final AtomicLong received = new AtomicLong();
+    private final ConcurrentHashMap<String, AtomicLong> totalErrors = new ConcurrentHashMap<String, AtomicLong>();
+    private final AtomicReference<ConcurrentHashMap<String, AtomicLong>> currentErrors =
+            new AtomicReference<ConcurrentHashMap<String, AtomicLong>>(new ConcurrentHashMap<String, AtomicLong>());
+    private final LatencyHistogram total = new LatencyHistogram();
+    private final AtomicReference<LatencyHistogram> current = new AtomicReference<LatencyHistogram>(new LatencyHistogram());
+
+    public static void main(String[] args) throws InterruptedException{
+        LoadGenerator generator = new LoadGenerator();
+        try {
+            generator.parse(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println("ERROR: " + e.getMessage());
+            System.err.println("Usage: LoadGenerator --uri URI [--rate RPS] [--duration SECS] [--senders N]"
+                    + " [--workers N] [--channel NAME] [--interval SECS]");
+            System.exit(1);
+        }
+        try {
+            generator.run();
+        } catch (IllegalStateException e) {
+            System.err.println("ERROR: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Internal: Reads the options from given command line arguments.
+     */
+    void parse(String[] args){
+        for (int i = 0; i < args.length; i++){
+            String name = args[i];
+            if (i + 1 >= args.length){
+                throw new IllegalArgumentException("Missing value for " + name);
+            }
+            String value = args[++i];
+            if (name.equals("--uri")){
+                uri = value;
+            } else if (name.equals("--rate")){
+                rate = positive(name, value);
+            } else if (name.equals("--duration")){
+                duration = positive(name, value);
+            } else if (name.equals("--senders")){
+                senders = positive(name, value);
+            } else if (name.equals("--workers")){
+                workers = nonNegative(name, value);
+            } else if (name.equals("--channel")){
+                channel = value;
+            } else if (name.equals("--interval")){
+                interval = positive(name, value);
+            } else {
+                throw new IllegalArgumentException("Unknown option " + name);
+            }
+        }
+        if (uri == null){
+            throw new IllegalArgumentException("Missing --uri");
+        }
+    }
+
+    private static int positive(String name, String value){
+        int n = Integer.parseInt(value);
+        if (n <= 0){
+            throw new IllegalArgumentException(name + " must be positive");
+        }
+        return n;
+    }
+
+    private static int nonNegative(String name, String value){
+        int n = Integer.parseInt(value);
+        if (n < 0){
+            throw new IllegalArgumentException(name + " can't be negative");
+        }
+        return n;
+    }
+
+    /**
+     * Internal: Runs the load for configured duration and prints the report.
+     *
+     * Raises IllegalStateException if the channel couldn't be opened or
+     * the workers couldn't connect.
+     */
+    void run() throws InterruptedException{
+        String response;
+        try {
+            response = new Client(uri).openChannel(channel);
+        } catch (RuntimeException e) {
+            response = null;
+        }
+        if (!"0".equals(response)){
+            throw new IllegalStateException("Can't open channel " + channel + " on " + uri + ": "
+                    + (response == null ? "no response" : response));
+        }
+        List<WorkerPublisher> publishers = new ArrayList<WorkerPublisher>();
+        for (int i = 0; i < workers; i++){
+            WorkerPublisher publisher = new WorkerPublisher(uri);
+            publisher.subscribe(new CountingSubscriber());
+            publishers.add(publisher);
+        }
+        awaitReady(publishers);
+
+        final long start = System.nanoTime();
+        final long end = start + duration * 1000000000L;
+        final long period = 1000000000L / rate;
+        Thread[] threads = new Thread[senders];
+        for (int i = 0; i < senders; i++){
+            threads[i] = new Thread(new Runnable() {
+                public void run() {
+                    send(new Client(uri), start, end, period);
+                }
+            }, "kosmonaut-load-" + i);
+            threads[i].setDaemon(true);
+            threads[i].start();
+        }
+
+        System.out.println(String.format("%8s %8s %10s %10s %10s %10s %10s %10s  %s",
+                "time", "sent", "req/s", "p50(ms)", "p99(ms)", "p999(ms)", "max(ms)", "received", "errors"));
+        long lastReceived = 0;
+        for (int elapsed = 0; elapsed < duration; ){
+            int from = elapsed;
+            elapsed = Math.min(elapsed + interval, duration);
+            long wake = start + elapsed * 1000000000L;
+            long now;
+            while ((now = System.nanoTime()) < wake){
+                Thread.sleep(Math.max(1, (wake - now) / 1000000));
+            }
+            LatencyHistogram histogram = current.getAndSet(new LatencyHistogram());
+            ConcurrentHashMap<String, AtomicLong> errors = currentErrors.getAndSet(new ConcurrentHashMap<String, AtomicLong>());
+            long receivedNow = received.get();
+            report(String.valueOf(elapsed), histogram, elapsed - from, receivedNow - lastReceived, errors);
+            lastReceived = receivedNow;
+        }
+        for (Thread thread : threads){
+            thread.join(5000);
+        }
+        report("total", total, duration, received.get(), totalErrors);
+    }
+
+    /**
+     * Internal: Waits until all the workers are ready to receive messages,
+     * so the first broadcasts aren't missed.
+     *
+     * Raises IllegalStateException if they aren't ready in time.
+     */
+    private void awaitReady(List<WorkerPublisher> publishers) throws InterruptedException{
+        long deadline = System.currentTimeMillis() + WORKERS_TIMEOUT;
+        for (WorkerPublisher publisher : publishers){
+            while (!publisher.isReady()){
+                if (System.currentTimeMillis() >= deadline){
+                    throw new IllegalStateException("Workers couldn't connect to " + uri);
+                }
+                Thread.sleep(10);
+            }
+        }
+    }
+
+    /**
+     * Internal: Sends broadcasts on the schedule shared with the other
+     * sender threads until the end of the run.
+     */
+    private void send(Client client, long start, long end, long period){
+        HashMap<String, String> data = new HashMap<String, String>();
+        data.put("content", "load");
+        while (true){
+            long intended = start + sequence.getAndIncrement() * period;
+            if (intended >= end){
+                return;
+            }
+            long now;
+            while ((now = System.nanoTime()) < intended){
+                long wait = intended - now;
+                try {
+                    Thread.sleep(wait / 1000000, (int) (wait % 1000000));
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+            String response;
+            try {
+                response = client.broadcast(channel, "load", data);
+            } catch (RuntimeException e) {
+                response = null;
+            }
+            long latency = System.nanoTime() - intended;
+            total.record(latency);
+            current.get().record(latency);
+            if (!"0".equals(response)){
+                String code = response == null ? "no response" : response;
+                countError(totalErrors, code);
+                countError(currentErrors.get(), code);
+            }
+        }
+    }
+
+    private static void countError(ConcurrentHashMap<String, AtomicLong> errors, String code){
+        AtomicLong count = errors.get(code);
+        if (count == null){
+            AtomicLong created = new AtomicLong();
+            count = errors.putIfAbsent(code, created);
+            if (count == null){
+                count = created;
+            }
+        }
+        count.incrementAndGet();
+    }
+
+    private void report(String label, LatencyHistogram histogram, int seconds, long receivedCount,
+            Map<String, AtomicLong> errors){
+        long count = histogram.getCount();
+        Map<String, Long> errorCounts = new TreeMap<String, Long>();
+        for (Map.Entry<String, AtomicLong> entry : errors.entrySet()){
+            errorCounts.put(entry.getKey(), entry.getValue().get());
+        }
+        System.out.println(String.format("%8s %8d %10.1f %10.3f %10.3f %10.3f %10.3f %10d  %s",
+                label, count, (double) count / seconds,
+                millis(histogram.percentile(50)), millis(histogram.percentile(99)),
+                millis(histogram.percentile(99.9)), millis(histogram.getMax()),
+                receivedCount, errorCounts));
+    }
+
+    private static double millis(long nanos){
+        return nanos / 1000000.0;
+    }
+
+    /**
+     * Internal: Subscriber counting the messages received by a worker.
+     */
+    private class CountingSubscriber implements Flow.Subscriber<Message> {
+        public void onSubscribe(Flow.Subscription subscription){
+            subscription.request(Long.MAX_VALUE);
+        }
+
+        public void onNext(Message message){
+            received.incrementAndGet();
+        }
+
+        public void onError(Throwable t){
+            System.err.println("ERROR: worker failed: " + t);
+        }
+
+        public void onComplete(){
+        }
+    }
+
+    /**
+     * Internal: Lock free latency histogram with logarithmic buckets, each
+     * power of two split into 32 linear sub-buckets, which keeps the
+     * relative error of reported values around 3%. Values are recorded
+     * with microsecond resolution.
+     */
+    static class LatencyHistogram {
+        private static final int SUB_BITS = 5;
+        private static final int SUB_COUNT = 1 << SUB_BITS;
+        private static final int MAX_EXPONENT = 40;
+
+        private final AtomicLongArray buckets = new AtomicLongArray(SUB_COUNT * (MAX_EXPONENT - SUB_BITS + 2));
+        private final AtomicLong count = new AtomicLong();
+        private final AtomicLong max = new AtomicLong();
+
+        public void record(long nanos){
+            long micros = Math.max(0, nanos / 1000);
+            buckets.incrementAndGet(index(micros));
+            count.incrementAndGet();
+            long seen;
+            while ((seen = max.get()) < nanos && !max.compareAndSet(seen, nanos)){
+                // retry
+            }
+        }
+
+        static int index(long micros){
+            if (micros < SUB_COUNT){
+                return (int) micros;
+            }
+            int exponent = Math.min(MAX_EXPONENT, 63 - Long.numberOfLeadingZeros(micros));
+            int shift = exponent - SUB_BITS;
+            int sub = (int) ((micros >> shift) & (SUB_COUNT - 1));
+            if (exponent == MAX_EXPONENT && (micros >> MAX_EXPONENT) > 1){
+                sub = SUB_COUNT - 1;
+            }
+            return SUB_COUNT + shift * SUB_COUNT + sub;
+        }
+
+        /**
+         * Internal: Returns the highest value (in micros) falling into the
+         * bucket with given index.
+         */
+        static long upperBound(int index){
+            if (index < SUB_COUNT){
+                return index;
+            }
+            int shift = index / SUB_COUNT - 1;
+            int sub = index % SUB_COUNT;
+            return ((long) (SUB_COUNT + sub + 1) << shift) - 1;
+        }
+
+        public long getCount(){
+            return count.get();
+        }
+
+        public long getMax(){
+            return max.get();
+        }
+
+        /**
+         * Public: Returns the value (in nanos) below which given percent of
+         * the recorded values falls, or 0 if nothing was recorded.
+         */
+        public long percentile(double percent){
+            long n = count.get();
+            if (n == 0){
+                return 0;
+            }
+            long rank = (long) Math.ceil(n * percent / 100.0);
+            long seen = 0;
+            for (int i = 0; i < buckets.length(); i++){
+                seen += buckets.get(i);
+                if (seen >= rank){
+                    return Math.min(upperBound(i) * 1000, max.get());
+                }
+            }
+            return max.get();
+        }
+    }
+}
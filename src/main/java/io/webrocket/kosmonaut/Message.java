@@ -31,6 +31,10 @@ public class Message {
 	public void setEvent(String event) {
 		this.event = event;
 	}
+
+	public HashMap<String, String> getData() {
+		return data;
+	}
 	
 	/**
 	 * Internal: Constructor, creates new message.
@@ -0,0 +1,22 @@
+package io.webrocket.kosmonaut;
+
+/**
+ * Public: MessageIdExtractor tells which incoming messages are the same,
+ * used by DuplicateFilter.
+ *
+ * Examples
+ *
+ * new MessageIdExtractor() {
+ *     public String extract(Message message) {
+ *         return message.getData().get("id");
+ *     }
+ * };
+ *
+ */
+public interface MessageIdExtractor {
+    /**
+     * Public: Returns unique ID of given message, or null if the message
+     * can't be identified and should never be treated as a duplicate.
+     */
+    String extract(Message message);
+}
@@ -0,0 +1,163 @@
+package io.webrocket.kosmonaut;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Public: RequestLanes separates Client requests into lanes with their own
+ * connections, so a large fan-out of broadcasts doesn't delay issuing
+ * access tokens or managing channels.
+ *
+ * Each lane has a weight, which is the number of connections it may use
+ * at once. Requests over that number wait in the lane's FIFO queue,
+ * without affecting the other lanes.
+ *
+ * Examples
+ *
+ * Client c = new Client("wr://token@127.0.0.1:8081/test");
+ * c.setRequestLanes(new RequestLanes(2, 1, 4));
+ * ...
+ * c.getRequestLanes().getQueueDepth(RequestLanes.Lane.BROADCAST);
+ *
+ */
+public class RequestLanes {
+    /**
+     * Public: Kinds of the requests.
+     *
+     * TOKEN - `AT` access token requests.
+     * CONTROL - `OC` and `CC` channel management.
+     * BROADCAST - `BC` broadcasts.
+     */
+    public enum Lane {
+        TOKEN, CONTROL, BROADCAST
+    }
+
+    private final LaneState[] lanes = new LaneState[Lane.values().length];
+
+    /**
+     * Public: The RequestLanes constructor.
+     *
+     * @param tokenWeight - Connections for the TOKEN lane.
+     * @param controlWeight - Connections for the CONTROL lane.
+     * @param broadcastWeight - Connections for the BROADCAST lane.
+     */
+    public RequestLanes(int tokenWeight, int controlWeight, int broadcastWeight){
+        if (tokenWeight < 1 || controlWeight < 1 || broadcastWeight < 1){
+            throw new IllegalArgumentException("lane weights must be positive");
+        }
+        lanes[Lane.TOKEN.ordinal()] = new LaneState(tokenWeight);
+        lanes[Lane.CONTROL.ordinal()] = new LaneState(controlWeight);
+        lanes[Lane.BROADCAST.ordinal()] = new LaneState(broadcastWeight);
+    }
+
+    /**
+     * Public: Returns the lane for the request with given command.
+     */
+    public static Lane laneOf(String cmd){
+        if (cmd.equals("AT")){
+            return Lane.TOKEN;
+        }
+        if (cmd.equals("BC")){
+            return Lane.BROADCAST;
+        }
+        return Lane.CONTROL;
+    }
+
+    /**
+     * Internal: Runs the request once the lane has a free connection.
+     *
+     * @param lane - The lane to run the request in.
+     * @param request - The request to be run.
+     *
+     * Returns result of the request.
+     */
+    public String execute(Lane lane, Callable<String> request){
+        LaneState state = lanes[lane.ordinal()];
+        long start = System.nanoTime();
+        state.permits.acquireUninterruptibly();
+        long started = System.nanoTime();
+        try {
+            return request.call();
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        } finally {
+            state.permits.release();
+            long latency = System.nanoTime() - start;
+            state.completed.incrementAndGet();
+            state.totalWait.addAndGet(started - start);
+            state.totalLatency.addAndGet(latency);
+            long seen;
+            while ((seen = state.maxLatency.get()) < latency && !state.maxLatency.compareAndSet(seen, latency)){
+                // retry
+            }
+        }
+    }
+
+    public int getWeight(Lane lane){
+        return lanes[lane.ordinal()].weight;
+    }
+
+    /**
+     * Public: Returns number of requests waiting for a connection in
+     * given lane.
+     */
+    public int getQueueDepth(Lane lane){
+        return lanes[lane.ordinal()].permits.getQueueLength();
+    }
+
+    /**
+     * Public: Returns number of requests being sent in given lane.
+     */
+    public int getInFlight(Lane lane){
+        LaneState state = lanes[lane.ordinal()];
+        return state.weight - state.permits.availablePermits();
+    }
+
+    public long getCompleted(Lane lane){
+        return lanes[lane.ordinal()].completed.get();
+    }
+
+    /**
+     * Public: Returns average time (in nanos) requests in given lane spent
+     * waiting for a connection.
+     */
+    public long getAverageWait(Lane lane){
+        LaneState state = lanes[lane.ordinal()];
+        long n = state.completed.get();
+        return n == 0 ? 0 : state.totalWait.get() / n;
+    }
+
+    /**
+     * Public: Returns average time (in nanos) of requests in given lane,
+     * including the wait.
+     */
+    public long getAverageLatency(Lane lane){
+        LaneState state = lanes[lane.ordinal()];
+        long n = state.completed.get();
+        return n == 0 ? 0 : state.totalLatency.get() / n;
+    }
+
+    public long getMaxLatency(Lane lane){
+        return lanes[lane.ordinal()].maxLatency.get();
+    }
+
+    /**
+     * Internal: Connections and counters of a single lane.
+     */
+    private static class LaneState {
+        final int weight;
+        final Semaphore permits;
+        final AtomicLong completed = new AtomicLong();
+        final AtomicLong totalWait = new AtomicLong();
+        final AtomicLong totalLatency = new AtomicLong();
+        final AtomicLong maxLatency = new AtomicLong();
+
+        LaneState(int weight){
+            this.weight = weight;
+            this.permits = new Semaphore(weight, true);
+        }
+    }
+}
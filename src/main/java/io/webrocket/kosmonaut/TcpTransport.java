@@ -0,0 +1,42 @@
+package io.webrocket.kosmonaut;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.net.URI;
+
+/**
+ *  Internal: TcpTransport connects with the backend endpoint over TCP.
+ */
+public class TcpTransport extends Transport {
+    private URI uri;
+    private Socket socket = null;
+
+    public TcpTransport(URI uri){
+        this.uri = uri;
+    }
+
+    public void connect(int timeout) throws IOException{
+        this.socket = new Socket(this.uri.getHost(), this.uri.getPort());
+        this.socket.setSoTimeout(timeout);
+    }
+
+    public InputStream getInputStream() throws IOException{
+        return socket.getInputStream();
+    }
+
+    public OutputStream getOutputStream() throws IOException{
+        return socket.getOutputStream();
+    }
+
+    public void close() throws IOException{
+        if (socket != null){
+            socket.close();
+        }
+    }
+
+    public String getAddress(){
+        return this.uri.getHost();
+    }
+}
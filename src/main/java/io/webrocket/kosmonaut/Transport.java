@@ -0,0 +1,114 @@
+package io.webrocket.kosmonaut;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.URI;
+import java.util.ArrayList;
+
+/**
+ *  Internal: Transport is a single connection with the backend endpoint.
+ *  WRSocket reads and writes packets through it, so the protocol code
+ *  doesn't care whether it talks over TCP or a Unix domain socket.
+ *
+ *  The transport is picked by the scheme of the endpoint's URL:
+ *
+ * wr://[secret]@[host]:[port]/[vhost] - TCP
+ * wr+unix://[secret]@localhost/[vhost]?socket=[path] - Unix domain socket
+ *
+ */
+public abstract class Transport {
+    public static final String TCP_SCHEME = "wr";
+    public static final String UNIX_SCHEME = "wr+unix";
+
+    private BufferedReader reader = null;
+    private StringBuilder line = new StringBuilder();
+    private ArrayList<String> frame = new ArrayList<String>();
+
+    /**
+     *  Internal: Creates not connected transport appropriate for given
+     *  endpoint URL.
+     *
+     *  uri - The endpoint URL.
+     *
+     *  Raises IllegalArgumentException if the scheme is not supported.
+     */
+    public static Transport forUri(URI uri){
+        String scheme = uri.getScheme();
+        if (scheme == null || scheme.equals(TCP_SCHEME)){
+            return new TcpTransport(uri);
+        }
+        if (scheme.equals(UNIX_SCHEME)){
+            return new UnixTransport(uri);
+        }
+        throw new IllegalArgumentException("Unsupported scheme: " + scheme);
+    }
+
+    /**
+     *  Internal: Opens the connection.
+     *
+     *  timeout - A read timeout in milliseconds, 0 waits forever.
+     */
+    public abstract void connect(int timeout) throws IOException;
+
+    public abstract InputStream getInputStream() throws IOException;
+
+    public abstract OutputStream getOutputStream() throws IOException;
+
+    public abstract void close() throws IOException;
+
+    /**
+     *  Internal: Returns reader over the input stream, shared by all the
+     *  reads from this connection so no buffered data is lost between
+     *  them.
+     */
+    public BufferedReader getReader() throws IOException{
+        if (reader == null){
+            reader = new BufferedReader(new InputStreamReader(getInputStream()));
+        }
+        return reader;
+    }
+
+    /**
+     *  Internal: Reads single packet from the connection, leaving the
+     *  following ones unread. Packet ends with an empty line.
+     *
+     *  The part of the packet read so far is kept in the transport, so if
+     *  the read times out, the next call continues where this one stopped.
+     *
+     *  Returns lines of the packet, or null if the connection has been
+     *  closed.
+     */
+    public ArrayList<String> readFrame() throws IOException{
+        BufferedReader in = getReader();
+        int c;
+        while ((c = in.read()) != -1){
+            if (c != '\n'){
+                line.append((char) c);
+                continue;
+            }
+            int length = line.length();
+            if (length > 0 && line.charAt(length - 1) == '\r'){
+                line.setLength(length - 1);
+            }
+            String text = line.toString();
+            line.setLength(0);
+            if (text.length() > 0){
+                frame.add(text);
+            } else if (!frame.isEmpty()){
+                ArrayList<String> result = frame;
+                frame = new ArrayList<String>();
+                return result;
+            }
+        }
+        return null;
+    }
+
+    /**
+     *  Internal: Returns human readable address of the endpoint, used
+     *  in the error messages.
+     */
+    public abstract String getAddress();
+}
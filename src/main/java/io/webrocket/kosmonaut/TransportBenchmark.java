@@ -0,0 +1,255 @@
+package io.webrocket.kosmonaut;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketAddress;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+
+/**
+ * Public: TransportBenchmark compares round trips over TcpTransport (TCP
+ * loopback) and UnixTransport against in-process echo servers, so the
+ * numbers show the transport alone, without a WebRocket node.
+ *
+ * Two patterns are measured:
+ *
+ * persistent - many round trips over a single connection.
+ * per-request - connect, round trip and close, the way Client works.
+ *
+ * For each the latency percentiles and CPU time of the client and server
+ * threads per round trip are printed.
+ *
+ * Usage
+ *
+ * java io.webrocket.kosmonaut.TransportBenchmark [--requests 20000] [--size 64]
+ *
+ */
+public class TransportBenchmark {
+    private int requests = 20000;
+    private int size = 64;
+
+    private final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+
+    public static void main(String[] args) throws Exception{
+        TransportBenchmark benchmark = new TransportBenchmark();
+        for (int i = 0; i + 1 < args.length; i += 2){
+            if (args[i].equals("--requests")){
+                benchmark.requests = Integer.parseInt(args[i + 1]);
+            } else if (args[i].equals("--size")){
+                benchmark.size = Integer.parseInt(args[i + 1]);
+            } else {
+                System.err.println("Usage: TransportBenchmark [--requests N] [--size BYTES]");
+                System.exit(1);
+            }
+        }
+        benchmark.run();
+    }
+
+    /**
+     * Internal: Runs all the measurements and prints the results.
+     */
+    void run() throws Exception{
+        System.out.println(String.format("%-6s %-12s %9s %10s %10s %10s %14s",
+                "", "pattern", "requests", "mean(us)", "p50(us)", "p99(us)", "cpu(us/req)"));
+
+        final ServerSocket tcp = new ServerSocket(0);
+        Thread tcpServer = serve(new Runnable() {
+            public void run() {
+                try {
+                    while (true){
+                        Socket conn = tcp.accept();
+                        echo(conn.getInputStream(), conn.getOutputStream());
+                        conn.close();
+                    }
+                } catch (IOException e) {
+                    // closed
+                }
+            }
+        });
+        measure("tcp", URI.create("wr://bench@127.0.0.1:" + tcp.getLocalPort() + "/bench"), tcpServer);
+        tcp.close();
+
+        File path = File.createTempFile("kosmonaut-bench", ".sock");
+        path.delete();
+        final ServerSocketChannel unix = unixServer(path.getPath());
+        if (unix == null){
+            System.out.println("unix   skipped, Unix domain sockets need Java 16");
+            return;
+        }
+        Thread unixServer = serve(new Runnable() {
+            public void run() {
+                try {
+                    while (true){
+                        SocketChannel conn = unix.accept();
+                        echo(conn);
+                        conn.close();
+                    }
+                } catch (IOException e) {
+                    // closed
+                }
+            }
+        });
+        measure("unix", URI.create("wr+unix://bench@localhost/bench?socket=" + path.getPath()), unixServer);
+        unix.close();
+        path.delete();
+    }
+
+    private Thread serve(Runnable server){
+        Thread thread = new Thread(server, "kosmonaut-bench-server");
+        thread.setDaemon(true);
+        thread.start();
+        return thread;
+    }
+
+    private void measure(String name, URI uri, Thread server) throws IOException{
+        byte[] message = message();
+        int perRequest = Math.max(1, requests / 10);
+
+        Transport transport = Transport.forUri(uri);
+        transport.connect(5000);
+        persistent(transport, message, Math.max(1, requests / 10), null, server);
+        report(name, "persistent", persistent(transport, message, requests, new LoadGenerator.LatencyHistogram(), server));
+        transport.close();
+
+        perRequest(uri, message, Math.max(1, perRequest / 10), null, server);
+        report(name, "per-request", perRequest(uri, message, perRequest, new LoadGenerator.LatencyHistogram(), server));
+    }
+
+    /**
+     * Internal: Round trips over a single connection. Without a
+     * histogram it's a warm-up and returns null.
+     */
+    private Result persistent(Transport transport, byte[] message, int count,
+            LoadGenerator.LatencyHistogram histogram, Thread server) throws IOException{
+        OutputStream out = transport.getOutputStream();
+        BufferedReader in = transport.getReader();
+        long cpu = cpu(server);
+        long total = 0;
+        for (int i = 0; i < count; i++){
+            long start = System.nanoTime();
+            out.write(message);
+            out.flush();
+            in.readLine();
+            long rtt = System.nanoTime() - start;
+            total += rtt;
+            if (histogram != null){
+                histogram.record(rtt);
+            }
+        }
+        return histogram == null ? null : new Result(histogram, total, cpu(server) - cpu);
+    }
+
+    /**
+     * Internal: Round trips over a fresh connection each.
+     */
+    private Result perRequest(URI uri, byte[] message, int count,
+            LoadGenerator.LatencyHistogram histogram, Thread server) throws IOException{
+        long cpu = cpu(server);
+        long total = 0;
+        for (int i = 0; i < count; i++){
+            long start = System.nanoTime();
+            Transport transport = Transport.forUri(uri);
+            transport.connect(5000);
+            OutputStream out = transport.getOutputStream();
+            out.write(message);
+            out.flush();
+            transport.getReader().readLine();
+            transport.close();
+            long rtt = System.nanoTime() - start;
+            total += rtt;
+            if (histogram != null){
+                histogram.record(rtt);
+            }
+        }
+        return histogram == null ? null : new Result(histogram, total, cpu(server) - cpu);
+    }
+
+    private byte[] message(){
+        byte[] message = new byte[Math.max(1, size)];
+        for (int i = 0; i < message.length - 1; i++){
+            message[i] = 'x';
+        }
+        message[message.length - 1] = '\n';
+        return message;
+    }
+
+    /**
+     * Internal: Returns CPU time used so far by the current and server
+     * threads, in nanos.
+     */
+    private long cpu(Thread server){
+        if (!threads.isThreadCpuTimeSupported()){
+            return 0;
+        }
+        return threads.getCurrentThreadCpuTime() + Math.max(0, threads.getThreadCpuTime(server.getId()));
+    }
+
+    private void report(String name, String pattern, Result result){
+        LoadGenerator.LatencyHistogram histogram = result.histogram;
+        long count = histogram.getCount();
+        System.out.println(String.format("%-6s %-12s %9d %10.1f %10.1f %10.1f %14.1f",
+                name, pattern, count, result.total / 1000.0 / count,
+                histogram.percentile(50) / 1000.0, histogram.percentile(99) / 1000.0,
+                result.cpu / 1000.0 / count));
+    }
+
+    private static void echo(InputStream in, OutputStream out) throws IOException{
+        byte[] buffer = new byte[4096];
+        int n;
+        while ((n = in.read(buffer)) > 0){
+            out.write(buffer, 0, n);
+            out.flush();
+        }
+    }
+
+    private static void echo(SocketChannel conn) throws IOException{
+        ByteBuffer buffer = ByteBuffer.allocate(4096);
+        while (conn.read(buffer) > 0){
+            buffer.flip();
+            while (buffer.hasRemaining()){
+                conn.write(buffer);
+            }
+            buffer.clear();
+        }
+    }
+
+    /**
+     * Internal: Opens a Unix domain server socket at given path, or returns
+     * null if the runtime doesn't support them.
+     */
+    private static ServerSocketChannel unixServer(String path) throws Exception{
+        Class<?> addressClass;
+        try {
+            addressClass = Class.forName("java.net.UnixDomainSocketAddress");
+        } catch (ClassNotFoundException e) {
+            return null;
+        }
+        Object unix = Class.forName("java.net.StandardProtocolFamily").getField("UNIX").get(null);
+        Class<?> familyClass = Class.forName("java.net.ProtocolFamily");
+        ServerSocketChannel server = (ServerSocketChannel) ServerSocketChannel.class.getMethod("open", familyClass).invoke(null, unix);
+        Object address = addressClass.getMethod("of", String.class).invoke(null, path);
+        server.bind((SocketAddress) address);
+        return server;
+    }
+
+    private static class Result {
+        final LoadGenerator.LatencyHistogram histogram;
+        final long total;
+        final long cpu;
+
+        Result(LoadGenerator.LatencyHistogram histogram, long total, long cpu){
+            this.histogram = histogram;
+            this.total = total;
+            this.cpu = cpu;
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package io.webrocket.kosmonaut;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.InvocationTargetException;
+import java.net.SocketAddress;
+import java.net.SocketTimeoutException;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+
+/**
+ *  Internal: UnixTransport connects with the backend endpoint running on
+ *  the same host through a Unix domain socket, skipping the TCP loopback
+ *  stack. Requires Java 16 or newer at runtime, the JDK classes are looked
+ *  up reflectively so the rest of the library still runs on older JVMs.
+ *
+ *  Path of the socket file is taken from the `socket` query parameter:
+ *
+ * wr+unix://[secret]@localhost/[vhost]?socket=/var/run/webrocket.sock
+ *
+ *  The channel works in non-blocking mode and waits for it with a selector,
+ *  so reads and writes fail with SocketTimeoutException after the timeout,
+ *  the same way TCP sockets do. Streams of the transport shouldn't be used
+ *  from many threads at once.
+ */
+public class UnixTransport extends Transport {
+    private String path;
+    private SocketChannel channel = null;
+    private Selector selector = null;
+    private int timeout = 0;
+
+    public UnixTransport(URI uri){
+        this.path = socketPath(uri);
+        if (this.path == null){
+            throw new IllegalArgumentException("Missing socket path in: " + uri);
+        }
+    }
+
+    /**
+     *  Internal: Extracts the `socket` query parameter from given URL.
+     *
+     *  Returns the path or null if there's none.
+     */
+    static String socketPath(URI uri){
+        String query = uri.getQuery();
+        if (query == null){
+            return null;
+        }
+        for (String param : query.split("&")){
+            if (param.startsWith("socket=") && param.length() > 7){
+                return param.substring(7);
+            }
+        }
+        return null;
+    }
+
+    public void connect(int timeout) throws IOException{
+        SocketAddress address;
+        try {
+            Class<?> addressClass = Class.forName("java.net.UnixDomainSocketAddress");
+            Class<?> familyClass = Class.forName("java.net.ProtocolFamily");
+            Object unix = Class.forName("java.net.StandardProtocolFamily").getField("UNIX").get(null);
+            address = (SocketAddress) addressClass.getMethod("of", String.class).invoke(null, path);
+            this.channel = (SocketChannel) SocketChannel.class.getMethod("open", familyClass).invoke(null, unix);
+        } catch (InvocationTargetException e) {
+            if (e.getCause() instanceof IOException){
+                throw (IOException) e.getCause();
+            }
+            throw new IOException("Can't open Unix domain socket: " + path, e.getCause());
+        } catch (Exception e) {
+            throw new IOException("Unix domain sockets require Java 16 or newer", e);
+        }
+        try {
+            this.channel.connect(address);
+            this.channel.configureBlocking(false);
+            this.selector = Selector.open();
+        } catch (IOException e) {
+            this.channel.close();
+            throw e;
+        }
+        this.timeout = timeout;
+    }
+
+    /**
+     *  Internal: Waits until the channel is ready for given operations.
+     *
+     *  Raises SocketTimeoutException if it's not ready within the timeout.
+     */
+    private void await(int ops, String what) throws IOException{
+        channel.register(selector, ops);
+        int ready = selector.select(timeout);
+        selector.selectedKeys().clear();
+        if (ready == 0){
+            throw new SocketTimeoutException(what + " timed out");
+        }
+    }
+
+    public InputStream getInputStream() throws IOException{
+        return new InputStream() {
+            public int read() throws IOException {
+                byte[] b = new byte[1];
+                int n = read(b, 0, 1);
+                return n == -1 ? -1 : b[0] & 0xff;
+            }
+
+            public int read(byte[] b, int off, int len) throws IOException {
+                if (len == 0){
+                    return 0;
+                }
+                ByteBuffer buffer = ByteBuffer.wrap(b, off, len);
+                int n;
+                while ((n = channel.read(buffer)) == 0){
+                    await(SelectionKey.OP_READ, "Read");
+                }
+                return n;
+            }
+        };
+    }
+
+    public OutputStream getOutputStream() throws IOException{
+        return new OutputStream() {
+            public void write(int b) throws IOException {
+                write(new byte[] {(byte) b}, 0, 1);
+            }
+
+            public void write(byte[] b, int off, int len) throws IOException {
+                ByteBuffer buffer = ByteBuffer.wrap(b, off, len);
+                while (buffer.hasRemaining()){
+                    if (channel.write(buffer) == 0){
+                        await(SelectionKey.OP_WRITE, "Write");
+                    }
+                }
+            }
+        };
+    }
+
+    public void close() throws IOException{
+        if (selector != null){
+            selector.close();
+        }
+        if (channel != null){
+            channel.close();
+        }
+    }
+
+    public String getAddress(){
+        return this.path;
+    }
+}
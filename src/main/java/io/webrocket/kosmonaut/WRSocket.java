@@ -11,7 +11,7 @@ import java.util.ArrayList;
  */
 public abstract class WRSocket{
     protected URI uri;
-    protected Socket socket = null;
+    protected Transport socket = null;
     private String identity;
     
     /**
@@ -20,6 +20,8 @@ public abstract class WRSocket{
      *  The endpoint's URL must have the following format:
      *
      * [scheme]://[secret]@[host]:[port]/[vhost]
+     *
+     *  See Transport for the supported schemes.
      */
     public WRSocket(String uri){
         this.uri = URI.create(uri);
@@ -28,23 +30,41 @@ public abstract class WRSocket{
     /**
      *  Internal: Connect creates new connection with the backend endpoint.
      *
-     *  timeout - A value of the maximum executing time (float).
+     *  timeout - A value of the maximum executing time in seconds (float),
+     *  0 waits forever.
      *
      */
-    public Socket connect(float timeout){
+    public Transport connect(float timeout){
+        Transport transport = open(timeout);
+        if (transport == null){
+            return null;
+        }
+        this.socket = transport;
+        generateIdentity();
+        return this.socket;
+    }
+
+    /**
+     *  Internal: Opens new connection with the backend endpoint without
+     *  making it the current one, so many of them can be used at once.
+     *
+     *  timeout - A value of the maximum executing time in seconds (float),
+     *  0 waits forever.
+     *
+     *  Returns the connection or null if it couldn't be established.
+     */
+    protected Transport open(float timeout){
+        Transport transport = createTransport();
         try{
-            int secs = (int) timeout;
-            String server = this.uri.getHost();
-            this.socket = new Socket(server, this.uri.getPort());
-            this.socket.setSoTimeout(secs);
-            generateIdentity();
-            return this.socket;
+            int millis = (int) (timeout * 1000);
+            transport.connect(millis);
+            return transport;
         }catch (UnknownHostException e){
             System.err.println("Can't find host: " + this.uri.getHost());
             return null;
         } catch (IOException e) {
             System.err.println("Couldn't get I/O for "
-                               + "the connection to: " + this.uri.getHost());
+                               + "the connection to: " + transport.getAddress());
             return null;
         } catch (Exception e_){
             System.err.println("Error: " + e_.getMessage());
@@ -52,6 +72,14 @@ public abstract class WRSocket{
         }
     }
     
+    /**
+     *  Internal: Creates transport used for the next connection. Override
+     *  to plug in a custom transport.
+     */
+    protected Transport createTransport(){
+        return Transport.forUri(this.uri);
+    }
+
     protected abstract String getSocketType();
     
     /**
@@ -62,7 +90,11 @@ public abstract class WRSocket{
      *
      */
     public void generateIdentity(){
-        this.identity = new String(this.getSocketType() + ":" + this.uri.getPath() + ":" + this.uri.getUserInfo() + ":" + UUID.randomUUID());
+        this.identity = newIdentity();
+    }
+
+    protected String newIdentity(){
+        return new String(this.getSocketType() + ":" + this.uri.getPath() + ":" + this.uri.getUserInfo() + ":" + UUID.randomUUID());
     }
 
     /**
@@ -86,9 +118,17 @@ public abstract class WRSocket{
      * Returns packed data.
      */
     public String pack(ArrayList<String> payload, boolean withIdentity){
+        return pack(payload, withIdentity ? this.identity : null);
+    }
+
+    /**
+     *  Internal: Packs given payload prepending the given identity, or no
+     *  identity if it's null.
+     */
+    public String pack(ArrayList<String> payload, String identity){
         StringBuilder response = new StringBuilder();
-        if (withIdentity){
-        	response.append(this.identity + "\n");
+        if (identity != null){
+        	response.append(identity + "\n");
             response.append("\n");
         }
         for(String data : payload){
@@ -100,6 +140,10 @@ public abstract class WRSocket{
     }
 
     public Boolean write(String packet){
+        return write(this.socket, packet);
+    }
+
+    public Boolean write(Transport socket, String packet){
         try{
             PrintWriter writer = new PrintWriter(socket.getOutputStream(), true);
             writer.println(packet);
@@ -111,7 +155,7 @@ public abstract class WRSocket{
         }
     }
 
-    public ArrayList<String> recv(Socket socket){
+    public ArrayList<String> recv(Transport socket){
         try{
             BufferedReader reader = new BufferedReader(new InputStreamReader(socket.getInputStream()));
             ArrayList<String> lines = new ArrayList<String>();
@@ -127,9 +171,26 @@ public abstract class WRSocket{
         }
     }
 
+    /**
+     *  Internal: Reads single packet from the connection, leaving the
+     *  following ones unread. See Transport#readFrame.
+     *
+     *  socket - The connection to read from.
+     *
+     *  Returns lines of the packet, or null if the connection has been
+     *  closed.
+     */
+    public ArrayList<String> recvFrame(Transport socket) throws IOException{
+        return socket.readFrame();
+    }
+
     public void closeSocket(){
+        closeSocket(this.socket);
+    }
+
+    public void closeSocket(Transport socket){
         try{
-            this.socket.close();
+            socket.close();
         }catch (IOException e){
             //TODO log
             System.err.println("ERROR: " + e.getMessage());
@@ -1,10 +1,9 @@
 package io.webrocket.kosmonaut;
 
 import java.io.IOException;
-import java.net.Socket;
 import java.util.ArrayList;
-import java.util.Date;
 import java.util.HashMap;
+import java.util.Iterator;
 
 import org.json.JSONException;
 import org.json.JSONObject;
@@ -14,9 +13,10 @@ import sun.misc.SignalHandler;
 
 public abstract class Worker extends WRSocket {
 	private boolean isAlive;
-	private float heartbitAt; 
+	private long heartbitAt; 
 	private int heartbitInterval;
 	private int reconnectDelay;
+	private DuplicateFilter duplicateFilter = null;
 	/**
 	 *  Number of milliseconds after which client should retry to reconnect
      *  to the backend endpoint. 
@@ -40,7 +40,7 @@ public abstract class Worker extends WRSocket {
 		super(uri);
 		socket = null;
 		isAlive = false;
-		heartbitAt = (float) 0;
+		heartbitAt = 0;
 		heartbitInterval = HEARTBEAT_INTERVAL;
 		reconnectDelay = RECONNECT_DELAY;
 	}
@@ -109,7 +109,7 @@ public abstract class Worker extends WRSocket {
 		ArrayList<String> cmd = new ArrayList<String>();
 		cmd.add("RD");
 		send(socket, cmd, true);
-		this.heartbitAt = new Float(new Date().getTime()) + (this.HEARTBEAT_INTERVAL / 1000);
+		this.heartbitAt = System.currentTimeMillis() + this.HEARTBEAT_INTERVAL;
 	  	//TODO rescue Errno::ECONNREFUSED
 	}
 	
@@ -118,11 +118,11 @@ public abstract class Worker extends WRSocket {
      * heartbeat schedule.
 	 */
 	public void heartbeatIfTime(){
-		if (new Float(new Date().getTime()) > this.heartbitAt){
+		if (System.currentTimeMillis() > this.heartbitAt){
 			ArrayList<String> payload = new ArrayList<String>();
 			payload.add("HB");
 			send(socket, payload);
-			this.heartbitAt = new Float( new Date().getTime() ) + (heartbitInterval / 1000); 
+			this.heartbitAt = System.currentTimeMillis() + heartbitInterval;
 		}
 	}
 	
@@ -133,7 +133,7 @@ public abstract class Worker extends WRSocket {
 	 *  @param payload - The payload to be packed and sent.
 	 *  @param withIdentity - Whether identity should be prepend to the packet.
     */
-	public void send(Socket socket, ArrayList<String> payload, boolean withIdentity){
+	public void send(Transport socket, ArrayList<String> payload, boolean withIdentity){
 		String packet = pack(payload, withIdentity);
 		this.write(packet);
 		// TODO
@@ -141,7 +141,7 @@ public abstract class Worker extends WRSocket {
 		// rescue Errno::EPIPE
 	}
 	
-	public void send(Socket socket, ArrayList<String> payload){
+	public void send(Transport socket, ArrayList<String> payload){
 		send(socket, payload, false);
 	}
 
@@ -186,7 +186,7 @@ public abstract class Worker extends WRSocket {
         	messageHandler(message);
         }
         if (cmd.equals("ER")){
-        	int errorCode = (Integer) (message.size() < 1 ? 597 : message.get(1));
+        	int errorCode = message.size() < 2 ? 597 : Integer.parseInt(message.get(1));
         	errorHandler(errorCode);
         }
         return true;
@@ -209,10 +209,34 @@ public abstract class Worker extends WRSocket {
 		}
 	}
 	
-	public void messageHandler(ArrayList<String> date){
+	public void messageHandler(ArrayList<String> message){
+		if (message.size() < 2){
+			errorHandler(400);
+			return;
+		}
 		try {
-			JSONObject payload = new JSONObject(date.toString());
-			sendMessage(payload.toString());
+			JSONObject payload = new JSONObject(message.get(1));
+			Iterator<?> keys = payload.keys();
+			if (!keys.hasNext()){
+				errorHandler(400);
+				return;
+			}
+			String event = keys.next().toString();
+			HashMap<String, String> data = new HashMap<String, String>();
+			JSONObject fields = payload.optJSONObject(event);
+			if (fields != null){
+				Iterator<?> names = fields.keys();
+				while (names.hasNext()){
+					String name = names.next().toString();
+					data.put(name, fields.get(name).toString());
+				}
+			}
+			Message msg = new Message(this.uri.toString(), event, data);
+			if (duplicateFilter != null && duplicateFilter.isDuplicate(msg)){
+				//TODO log
+				return;
+			}
+			onMessage(msg);
 		} catch (JSONException e) {
 			// TODO Auto-generated catch block
 			System.err.println(e.getMessage());
@@ -257,12 +281,61 @@ public abstract class Worker extends WRSocket {
 	}
 	
 
-	public Float getHeartbitAt() {
+	public DuplicateFilter getDuplicateFilter() {
+		return duplicateFilter;
+	}
+
+	/**
+	 * Public: Enables dropping of the messages delivered more than once,
+	 * eg. after reconnect. Pass null to disable.
+	 *
+	 * @param duplicateFilter - The filter to be used.
+	 */
+	public void setDuplicateFilter(DuplicateFilter duplicateFilter) {
+		this.duplicateFilter = duplicateFilter;
+	}
+
+	/**
+	 * Public: Returns time of the next heartbeat, in milliseconds since
+	 * the epoch.
+	 */
+	public long getHeartbeatAt() {
 		return heartbitAt;
 	}
 
+	public void setHeartbeatAt(long heartbeatAt) {
+		this.heartbitAt = heartbeatAt;
+	}
+
+	/**
+	 * Deprecated: Use getHeartbeatAt, float can't hold current epoch
+	 * millis precisely.
+	 */
+	@Deprecated
+	public Float getHeartbitAt() {
+		return Float.valueOf((float) heartbitAt);
+	}
+
+	/**
+	 * Deprecated: Use setHeartbeatAt.
+	 */
+	@Deprecated
 	public void setHeartbitAt(Float heartbitAt) {
-		this.heartbitAt = heartbitAt;
+		this.heartbitAt = heartbitAt.longValue();
+	}
+
+	/**
+	 * Internal: Number of milliseconds between heartbeats.
+	 */
+	protected int getHeartbeatInterval() {
+		return heartbitInterval;
+	}
+
+	/**
+	 * Internal: Number of milliseconds to wait before reconnecting.
+	 */
+	protected int getReconnectDelay() {
+		return reconnectDelay;
 	}
 	
 	/**
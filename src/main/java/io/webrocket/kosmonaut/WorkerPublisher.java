@@ -0,0 +1,269 @@
+package io.webrocket.kosmonaut;
+
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+import java.util.ArrayList;
+import java.util.concurrent.Flow;
+
+/**
+ * Public: WorkerPublisher is a java.util.concurrent.Flow.Publisher view of
+ * a worker connection. Messages triggered on the backend endpoint are delivered to
+ * the subscriber as they're requested: the connection is read only while
+ * there's outstanding demand, so a slow subscriber makes the backend
+ * endpoint hold the messages back instead of buffering them here.
+ *
+ * The publisher is unicast, it accepts a single subscriber. The connection
+ * is opened on subscribe and closed when the subscription is cancelled or
+ * the server sends a quit message. Dropped connections are reopened.
+ *
+ * Reads time out after a heartbeat interval, so heartbeats keep going out
+ * and cancellation takes effect even when the node is quiet.
+ *
+ * Reactive Streams libraries can adapt it with
+ * org.reactivestreams.FlowAdapters#toPublisher.
+ *
+ * Examples
+ *
+ * WorkerPublisher publisher = new WorkerPublisher("wr://token@127.0.0.1:8081/test");
+ * publisher.subscribe(new Flow.Subscriber<Message>() {
+ *     private Flow.Subscription subscription;
+ *     public void onSubscribe(Flow.Subscription s) { subscription = s; s.request(16); }
+ *     public void onNext(Message message) { save(message); subscription.request(1); }
+ *     public void onError(Throwable t) { }
+ *     public void onComplete() { }
+ * });
+ *
+ */
+public class WorkerPublisher extends Worker implements Flow.Publisher<Message> {
+    private Flow.Subscriber<? super Message> subscriber = null;
+    private final Object lock = new Object();
+    private long demand = 0;
+    private boolean cancelled = false;
+    private Throwable pendingError = null;
+    private volatile boolean ready = false;
+
+    public WorkerPublisher(String uri){
+        super(uri);
+    }
+
+    /**
+     * Public: Subscribes to the messages and starts reading them from the
+     * backend endpoint in the background thread.
+     *
+     * @param subscriber - The subscriber to deliver messages to.
+     */
+    public void subscribe(Flow.Subscriber<? super Message> subscriber){
+        if (subscriber == null){
+            throw new NullPointerException("subscriber");
+        }
+        synchronized (lock){
+            if (this.subscriber != null){
+                subscriber.onSubscribe(new Flow.Subscription() {
+                    public void request(long n) {}
+                    public void cancel() {}
+                });
+                subscriber.onError(new IllegalStateException("WorkerPublisher allows only one subscriber"));
+                return;
+            }
+            this.subscriber = subscriber;
+        }
+        subscriber.onSubscribe(new WorkerSubscription());
+        Thread reader = new Thread(new Runnable() {
+            public void run() {
+                readLoop();
+            }
+        }, "kosmonaut-worker-publisher");
+        reader.setDaemon(true);
+        reader.start();
+    }
+
+    /**
+     * Internal: Reads and dispatches messages as long as there's demand
+     * for them, sending heartbeats while waiting.
+     */
+    private void readLoop(){
+        try {
+            while (!isCancelled()){
+                Throwable error = takePendingError();
+                if (error != null){
+                    disconnect();
+                    fail(error);
+                    return;
+                }
+                if (socket == null && !open()){
+                    sleep(getReconnectDelay());
+                    continue;
+                }
+                if (!awaitDemand()){
+                    heartbeatIfTime();
+                    continue;
+                }
+                ArrayList<String> frame;
+                try {
+                    frame = recvFrame(socket);
+                } catch (SocketTimeoutException e) {
+                    heartbeatIfTime();
+                    continue;
+                } catch (IOException e) {
+                    frame = null;
+                }
+                if (frame == null){
+                    dropSocket();
+                    continue;
+                }
+                if (!isCancelled() && !dispatch(frame)){
+                    dropSocket();
+                    complete();
+                    return;
+                }
+                heartbeatIfTime();
+            }
+            ready = false;
+            disconnect();
+        } catch (Throwable t) {
+            dropSocket();
+            fail(t);
+        }
+    }
+
+    /**
+     * Internal: Connects and tells the server the worker is ready. Reads
+     * time out after one heartbeat interval.
+     *
+     * Returns false if connection couldn't be established.
+     */
+    private boolean open(){
+        if (connect(getHeartbeatInterval() / 1000f) == null){
+            return false;
+        }
+        ArrayList<String> cmd = new ArrayList<String>();
+        cmd.add("RD");
+        send(socket, cmd, true);
+        setHeartbeatAt(System.currentTimeMillis() + getHeartbeatInterval());
+        ready = true;
+        return true;
+    }
+
+    /**
+     * Public: Returns true while the worker is connected and has told the
+     * backend endpoint it's ready, ie. messages triggered now will reach
+     * it.
+     */
+    public boolean isReady(){
+        return ready;
+    }
+
+    /**
+     * Internal: Closes broken connection without saying goodbye.
+     */
+    private void dropSocket(){
+        ready = false;
+        if (socket != null){
+            closeSocket();
+            socket = null;
+        }
+    }
+
+    /**
+     * Internal: Waits at most one heartbeat interval for the demand.
+     *
+     * Returns true if there's demand for the next message.
+     */
+    private boolean awaitDemand() throws InterruptedException{
+        synchronized (lock){
+            if (demand == 0 && !cancelled && pendingError == null){
+                lock.wait(getHeartbeatInterval());
+            }
+            return demand > 0 && !cancelled && pendingError == null;
+        }
+    }
+
+    private boolean isCancelled(){
+        synchronized (lock){
+            return cancelled;
+        }
+    }
+
+    private Throwable takePendingError(){
+        synchronized (lock){
+            Throwable error = pendingError;
+            pendingError = null;
+            return error;
+        }
+    }
+
+    private void sleep(long millis) throws InterruptedException{
+        synchronized (lock){
+            if (!cancelled){
+                lock.wait(millis);
+            }
+        }
+    }
+
+    private void complete(){
+        synchronized (lock){
+            if (cancelled){
+                return;
+            }
+            cancelled = true;
+        }
+        subscriber.onComplete();
+    }
+
+    private void fail(Throwable t){
+        synchronized (lock){
+            if (cancelled){
+                return;
+            }
+            cancelled = true;
+        }
+        subscriber.onError(t);
+    }
+
+    @Override
+    public void onMessage(Message message){
+        synchronized (lock){
+            if (cancelled){
+                return;
+            }
+            demand--;
+        }
+        subscriber.onNext(message);
+    }
+
+    @Override
+    public void onError(Message message){
+    }
+
+    @Override
+    public void onException(Message message){
+    }
+
+    /**
+     * Internal: Subscription handed over to the subscriber. All the
+     * signals are sent from the reading thread, so cancelling and invalid
+     * requests take effect within one heartbeat interval.
+     */
+    private class WorkerSubscription implements Flow.Subscription {
+        public void request(long n){
+            synchronized (lock){
+                if (n <= 0){
+                    if (pendingError == null){
+                        pendingError = new IllegalArgumentException("Requested " + n + " messages, expected positive number");
+                    }
+                    lock.notifyAll();
+                    return;
+                }
+                demand = demand + n < 0 ? Long.MAX_VALUE : demand + n;
+                lock.notifyAll();
+            }
+        }
+
+        public void cancel(){
+            synchronized (lock){
+                cancelled = true;
+                lock.notifyAll();
+            }
+        }
+    }
+}
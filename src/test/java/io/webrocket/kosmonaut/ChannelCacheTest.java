@@ -0,0 +1,53 @@
+package io.webrocket.kosmonaut;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+public class ChannelCacheTest extends TestCase{
+
+    public ChannelCacheTest(String testName){
+        super(testName);
+    }
+
+    public static Test suite(){
+        return new TestSuite(ChannelCacheTest.class);
+    }
+
+    public void testHitsAndMisses(){
+        ChannelCache cache = new ChannelCache(10, 60000);
+        assertFalse(cache.contains("chat"));
+        cache.put("chat");
+        assertTrue(cache.contains("chat"));
+        assertEquals(1, cache.getHits());
+        assertEquals(1, cache.getMisses());
+        assertEquals(0.5, cache.getHitRate(), 0.0001);
+    }
+
+    public void testInvalidate(){
+        ChannelCache cache = new ChannelCache(10, 60000);
+        cache.put("chat");
+        cache.invalidate("chat");
+        assertFalse(cache.contains("chat"));
+    }
+
+    public void testEvictsLeastRecentlyUsed(){
+        ChannelCache cache = new ChannelCache(2, 60000);
+        cache.put("a");
+        cache.put("b");
+        cache.contains("a");
+        cache.put("c");
+        assertEquals(2, cache.size());
+        assertTrue(cache.contains("a"));
+        assertFalse(cache.contains("b"));
+        assertEquals(1, cache.getEvictions());
+    }
+
+    public void testExpires() throws InterruptedException{
+        ChannelCache cache = new ChannelCache(10, 1);
+        cache.put("chat");
+        Thread.sleep(5);
+        assertFalse(cache.contains("chat"));
+        assertEquals(0, cache.size());
+    }
+}
@@ -0,0 +1,79 @@
+package io.webrocket.kosmonaut;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+public class ConcurrencyLimiterTest extends TestCase{
+
+    public ConcurrencyLimiterTest(String testName){
+        super(testName);
+    }
+
+    public static Test suite(){
+        return new TestSuite(ConcurrencyLimiterTest.class);
+    }
+
+    public void testShedsBulkBeforeCritical(){
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(1, 4, 4);
+        assertTrue(limiter.acquire(ConcurrencyLimiter.Priority.BULK));
+        assertTrue(limiter.acquire(ConcurrencyLimiter.Priority.BULK));
+        assertFalse(limiter.acquire(ConcurrencyLimiter.Priority.BULK));
+        assertTrue(limiter.acquire(ConcurrencyLimiter.Priority.NORMAL));
+        assertFalse(limiter.acquire(ConcurrencyLimiter.Priority.NORMAL));
+        assertTrue(limiter.acquire(ConcurrencyLimiter.Priority.CRITICAL));
+        assertFalse(limiter.acquire(ConcurrencyLimiter.Priority.CRITICAL));
+        assertEquals(4, limiter.getInFlight());
+        assertEquals(3, limiter.getRejected());
+    }
+
+    public void testKeepsSlotForCriticalAtLowestLimit(){
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(1, 1, 1);
+        assertTrue(limiter.acquire(ConcurrencyLimiter.Priority.BULK));
+        assertFalse(limiter.acquire(ConcurrencyLimiter.Priority.BULK));
+        assertFalse(limiter.acquire(ConcurrencyLimiter.Priority.NORMAL));
+        assertTrue(limiter.acquire(ConcurrencyLimiter.Priority.CRITICAL));
+        assertFalse(limiter.acquire(ConcurrencyLimiter.Priority.CRITICAL));
+        assertEquals(2, limiter.getInFlight());
+    }
+
+    public void testGrowsWhileLatencyIsSteadyUnderLoad(){
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(1, 4, 100);
+        limiter.acquire(ConcurrencyLimiter.Priority.NORMAL);
+        limiter.acquire(ConcurrencyLimiter.Priority.NORMAL);
+        for (int i = 0; i < 50; i++){
+            assertTrue(limiter.acquire(ConcurrencyLimiter.Priority.NORMAL));
+            limiter.release(1000000, true);
+        }
+        assertTrue(limiter.getLimit() > 4);
+        assertEquals(2, limiter.getInFlight());
+    }
+
+    public void testStaysPutUnderLightLoad(){
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(1, 20, 200);
+        for (int i = 0; i < 1000; i++){
+            assertTrue(limiter.acquire(ConcurrencyLimiter.Priority.NORMAL));
+            limiter.release(1000000, true);
+        }
+        assertEquals(20, limiter.getLimit());
+    }
+
+    public void testShrinksWhenLatencyGrows(){
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(1, 50, 100);
+        limiter.acquire(ConcurrencyLimiter.Priority.NORMAL);
+        limiter.release(1000000, true);
+        int before = limiter.getLimit();
+        for (int i = 0; i < 50; i++){
+            limiter.acquire(ConcurrencyLimiter.Priority.NORMAL);
+            limiter.release(20000000, true);
+        }
+        assertTrue(limiter.getLimit() < before);
+    }
+
+    public void testBacksOffOnFailure(){
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(1, 10, 10);
+        limiter.acquire(ConcurrencyLimiter.Priority.NORMAL);
+        limiter.release(0, false);
+        assertEquals(9, limiter.getLimit());
+    }
+}
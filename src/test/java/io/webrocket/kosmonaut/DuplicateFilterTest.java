@@ -0,0 +1,82 @@
+package io.webrocket.kosmonaut;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+public class DuplicateFilterTest extends TestCase{
+    private static final MessageIdExtractor BY_ID = new MessageIdExtractor() {
+        public String extract(Message message) {
+            return message.getData().get("id");
+        }
+    };
+
+    public DuplicateFilterTest(String testName){
+        super(testName);
+    }
+
+    public static Test suite(){
+        return new TestSuite(DuplicateFilterTest.class);
+    }
+
+    private Message message(String id){
+        HashMap<String, String> data = new HashMap<String, String>();
+        if (id != null){
+            data.put("id", id);
+        }
+        return new Message("wr://token@127.0.0.1:8081/test", "hello", data);
+    }
+
+    public void testDropsRepeatedMessages(){
+        DuplicateFilter filter = new DuplicateFilter(BY_ID, 100, 60000);
+        assertFalse(filter.isDuplicate(message("1")));
+        assertFalse(filter.isDuplicate(message("2")));
+        assertTrue(filter.isDuplicate(message("1")));
+        assertEquals(1, filter.getDuplicates());
+    }
+
+    public void testPassesMessagesWithoutId(){
+        DuplicateFilter filter = new DuplicateFilter(BY_ID, 100, 60000);
+        assertFalse(filter.isDuplicate(message(null)));
+        assertFalse(filter.isDuplicate(message(null)));
+    }
+
+    public void testForgetsAfterWindow() throws InterruptedException{
+        DuplicateFilter filter = new DuplicateFilter(BY_ID, 100, 1);
+        assertFalse(filter.isDuplicate(message("1")));
+        Thread.sleep(5);
+        assertFalse(filter.isDuplicate(message("1")));
+    }
+
+    public void testStaysBounded(){
+        DuplicateFilter filter = new DuplicateFilter(BY_ID, 16, 60000);
+        for (int i = 0; i < 10000; i++){
+            assertFalse(filter.isDuplicate(message(String.valueOf(i))));
+        }
+        assertTrue(filter.isDuplicate(message("9999")));
+        assertFalse(filter.isDuplicate(message("0")));
+    }
+
+    public void testWorkerDispatchesRepeatedFrameOnce(){
+        final List<Message> delivered = new ArrayList<Message>();
+        Worker worker = new Worker("wr://token@127.0.0.1:8081/test") {
+            public void onMessage(Message message) {
+                delivered.add(message);
+            }
+            public void onError(Message message) {}
+            public void onException(Message message) {}
+        };
+        worker.setDuplicateFilter(new DuplicateFilter(BY_ID, 100, 60000));
+        ArrayList<String> frame = new ArrayList<String>();
+        frame.add("TR");
+        frame.add("{\"hello\":{\"id\":\"1\"}}");
+        assertTrue(worker.dispatch(frame));
+        assertTrue(worker.dispatch(frame));
+        assertEquals(1, delivered.size());
+        assertEquals("1", delivered.get(0).getData().get("id"));
+        assertEquals(1, worker.getDuplicateFilter().getDuplicates());
+    }
+}
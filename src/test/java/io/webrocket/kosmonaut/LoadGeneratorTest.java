@@ -0,0 +1,55 @@
+package io.webrocket.kosmonaut;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+public class LoadGeneratorTest extends TestCase{
+
+    public LoadGeneratorTest(String testName){
+        super(testName);
+    }
+
+    public static Test suite(){
+        return new TestSuite(LoadGeneratorTest.class);
+    }
+
+    public void testHistogramPercentiles(){
+        LoadGenerator.LatencyHistogram histogram = new LoadGenerator.LatencyHistogram();
+        for (int i = 1; i <= 1000; i++){
+            histogram.record(i * 1000000L);
+        }
+        assertEquals(1000, histogram.getCount());
+        assertEquals(1000000000L, histogram.getMax());
+        assertEquals(500, histogram.percentile(50) / 1000000.0, 500 * 0.04);
+        assertEquals(990, histogram.percentile(99) / 1000000.0, 990 * 0.04);
+        assertEquals(1000000000L, histogram.percentile(100));
+    }
+
+    public void testHistogramBucketsCoverValues(){
+        long[] values = {0, 31, 32, 33, 1000, 123456, 1L << 40, Long.MAX_VALUE / 1000};
+        for (long micros : values){
+            int index = LoadGenerator.LatencyHistogram.index(micros);
+            assertTrue(LoadGenerator.LatencyHistogram.upperBound(index) >= Math.min(micros, (1L << 41) - 1));
+        }
+    }
+
+    public void testRequiresUri(){
+        try {
+            new LoadGenerator().parse(new String[] {"--rate", "10"});
+            fail("expected IllegalArgumentException");
+        } catch (IllegalArgumentException e) {
+            // ok
+        }
+    }
+
+    public void testAllowsNoWorkersButNotNegative(){
+        new LoadGenerator().parse(new String[] {"--uri", "wr://token@127.0.0.1:8081/test", "--workers", "0"});
+        try {
+            new LoadGenerator().parse(new String[] {"--uri", "wr://token@127.0.0.1:8081/test", "--workers", "-1"});
+            fail("expected IllegalArgumentException");
+        } catch (IllegalArgumentException e) {
+            // ok
+        }
+    }
+}
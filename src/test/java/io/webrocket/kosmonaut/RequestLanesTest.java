@@ -0,0 +1,68 @@
+package io.webrocket.kosmonaut;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+public class RequestLanesTest extends TestCase{
+
+    public RequestLanesTest(String testName){
+        super(testName);
+    }
+
+    public static Test suite(){
+        return new TestSuite(RequestLanesTest.class);
+    }
+
+    public void testLaneOf(){
+        assertEquals(RequestLanes.Lane.TOKEN, RequestLanes.laneOf("AT"));
+        assertEquals(RequestLanes.Lane.CONTROL, RequestLanes.laneOf("OC"));
+        assertEquals(RequestLanes.Lane.CONTROL, RequestLanes.laneOf("CC"));
+        assertEquals(RequestLanes.Lane.BROADCAST, RequestLanes.laneOf("BC"));
+    }
+
+    public void testBusyBroadcastLaneDoesNotBlockTokens() throws Exception{
+        final RequestLanes lanes = new RequestLanes(1, 1, 1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final Callable<String> slow = new Callable<String>() {
+            public String call() throws Exception {
+                release.await(5, TimeUnit.SECONDS);
+                return "0";
+            }
+        };
+        Thread[] broadcasts = new Thread[3];
+        for (int i = 0; i < broadcasts.length; i++){
+            broadcasts[i] = new Thread(new Runnable() {
+                public void run() {
+                    lanes.execute(RequestLanes.Lane.BROADCAST, slow);
+                }
+            });
+            broadcasts[i].start();
+        }
+        long deadline = System.currentTimeMillis() + 5000;
+        while (lanes.getQueueDepth(RequestLanes.Lane.BROADCAST) < 2 && System.currentTimeMillis() < deadline){
+            Thread.sleep(10);
+        }
+        assertEquals(1, lanes.getInFlight(RequestLanes.Lane.BROADCAST));
+        assertEquals(2, lanes.getQueueDepth(RequestLanes.Lane.BROADCAST));
+
+        String token = lanes.execute(RequestLanes.Lane.TOKEN, new Callable<String>() {
+            public String call() {
+                return "token";
+            }
+        });
+        assertEquals("token", token);
+        assertEquals(1, lanes.getCompleted(RequestLanes.Lane.TOKEN));
+
+        release.countDown();
+        for (Thread thread : broadcasts){
+            thread.join(5000);
+        }
+        assertEquals(3, lanes.getCompleted(RequestLanes.Lane.BROADCAST));
+        assertEquals(0, lanes.getQueueDepth(RequestLanes.Lane.BROADCAST));
+        assertTrue(lanes.getMaxLatency(RequestLanes.Lane.BROADCAST) >= lanes.getAverageLatency(RequestLanes.Lane.BROADCAST));
+    }
+}
@@ -0,0 +1,161 @@
+package io.webrocket.kosmonaut;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+import java.io.File;
+import java.io.InputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketAddress;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+
+public class TransportTest extends TestCase{
+
+    public TransportTest(String testName){
+        super(testName);
+    }
+
+    public static Test suite(){
+        return new TestSuite(TransportTest.class);
+    }
+
+    public void testTcpScheme(){
+        Transport transport = Transport.forUri(URI.create("wr://token@127.0.0.1:8081/test"));
+        assertTrue(transport instanceof TcpTransport);
+    }
+
+    public void testUnixScheme(){
+        Transport transport = Transport.forUri(URI.create("wr+unix://token@localhost/test?socket=/tmp/wr.sock"));
+        assertTrue(transport instanceof UnixTransport);
+        assertEquals("/tmp/wr.sock", transport.getAddress());
+    }
+
+    public void testUnixSchemeWithoutPath(){
+        try {
+            Transport.forUri(URI.create("wr+unix://token@localhost/test"));
+            fail("expected IllegalArgumentException");
+        } catch (IllegalArgumentException e) {
+            // ok
+        }
+    }
+
+    public void testUnsupportedScheme(){
+        try {
+            Transport.forUri(URI.create("http://token@localhost/test"));
+            fail("expected IllegalArgumentException");
+        } catch (IllegalArgumentException e) {
+            // ok
+        }
+    }
+
+    public void testRequestTimeoutIsInSeconds() throws Exception{
+        final ServerSocket server = new ServerSocket(0);
+        new Thread(new Runnable() {
+            public void run() {
+                try {
+                    Socket conn = server.accept();
+                    InputStream in = conn.getInputStream();
+                    String received = "";
+                    byte[] buffer = new byte[1024];
+                    int n;
+                    while (!received.endsWith("\r\n\r\n\n") && (n = in.read(buffer)) > 0){
+                        received += new String(buffer, 0, n);
+                    }
+                    Thread.sleep(50);
+                    conn.getOutputStream().write("OK\n\r\n\r\n".getBytes());
+                    conn.close();
+                } catch (Exception e) {
+                    // client side will fail
+                }
+            }
+        }).start();
+        try {
+            Client client = new Client("wr://token@127.0.0.1:" + server.getLocalPort() + "/test");
+            assertEquals("0", client.openChannel("chat"));
+        } finally {
+            server.close();
+        }
+    }
+
+    /**
+     * Opens a Unix domain server socket at given path, or returns null if
+     * the runtime doesn't support them.
+     */
+    private ServerSocketChannel unixServer(String path) throws Exception{
+        Class<?> addressClass;
+        try {
+            addressClass = Class.forName("java.net.UnixDomainSocketAddress");
+        } catch (ClassNotFoundException e) {
+            return null;
+        }
+        Object unix = Class.forName("java.net.StandardProtocolFamily").getField("UNIX").get(null);
+        Class<?> familyClass = Class.forName("java.net.ProtocolFamily");
+        ServerSocketChannel server = (ServerSocketChannel) ServerSocketChannel.class.getMethod("open", familyClass).invoke(null, unix);
+        Object address = addressClass.getMethod("of", String.class).invoke(null, path);
+        ServerSocketChannel.class.getMethod("bind", SocketAddress.class).invoke(server, address);
+        return server;
+    }
+
+    private String tempSocketPath() throws Exception{
+        File file = File.createTempFile("kosmonaut", ".sock");
+        file.delete();
+        file.deleteOnExit();
+        return file.getPath();
+    }
+
+    public void testUnixRoundTrip() throws Exception{
+        String path = tempSocketPath();
+        final ServerSocketChannel server = unixServer(path);
+        if (server == null){
+            System.err.println("Skipping testUnixRoundTrip, Unix domain sockets need Java 16");
+            return;
+        }
+        new Thread(new Runnable() {
+            public void run() {
+                try {
+                    SocketChannel conn = server.accept();
+                    ByteBuffer in = ByteBuffer.allocate(1024);
+                    String received = "";
+                    while (!received.endsWith("\r\n\r\n\n") && conn.read(in) > 0){
+                        received = new String(in.array(), 0, in.position());
+                    }
+                    conn.write(ByteBuffer.wrap("OK\n\r\n\r\n".getBytes()));
+                    conn.close();
+                } catch (Exception e) {
+                    // client side will fail
+                }
+            }
+        }).start();
+        try {
+            Client client = new Client("wr+unix://token@localhost/test?socket=" + path);
+            assertEquals("0", client.openChannel("chat"));
+        } finally {
+            server.close();
+            new File(path).delete();
+        }
+    }
+
+    public void testUnixReadTimeout() throws Exception{
+        String path = tempSocketPath();
+        ServerSocketChannel server = unixServer(path);
+        if (server == null){
+            System.err.println("Skipping testUnixReadTimeout, Unix domain sockets need Java 16");
+            return;
+        }
+        try {
+            Client client = new Client("wr+unix://token@localhost/test?socket=" + path);
+            client.setRequestTimeout(0.2f);
+            long start = System.currentTimeMillis();
+            assertNull(client.openChannel("chat"));
+            long elapsed = System.currentTimeMillis() - start;
+            assertTrue("timed out after " + elapsed + "ms", elapsed >= 190 && elapsed < 2000);
+        } finally {
+            server.close();
+            new File(path).delete();
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package io.webrocket.kosmonaut;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Flow;
+
+public class WorkerPublisherTest extends TestCase{
+    private ServerSocket server;
+
+    public WorkerPublisherTest(String testName){
+        super(testName);
+    }
+
+    public static Test suite(){
+        return new TestSuite(WorkerPublisherTest.class);
+    }
+
+    protected void setUp() throws Exception{
+        server = new ServerSocket(0);
+    }
+
+    private void serveMessages(final String... ids){
+        new Thread(new Runnable() {
+            public void run() {
+                try {
+                    Socket conn = server.accept();
+                    OutputStream out = conn.getOutputStream();
+                    for (String id : ids){
+                        out.write(("TR\n{\"hello\":{\"n\":\"" + id + "\"}}\n\r\n\r\n").getBytes());
+                    }
+                    out.write("QT\n\r\n\r\n".getBytes());
+                    out.flush();
+                } catch (Exception e) {
+                    // test will time out
+                }
+            }
+        }).start();
+    }
+
+    protected void tearDown() throws Exception{
+        server.close();
+    }
+
+    public void testDeliversOnlyRequestedMessages() throws Exception{
+        serveMessages("0", "1", "2");
+        RecordingSubscriber subscriber = new RecordingSubscriber();
+        new WorkerPublisher("wr://token@127.0.0.1:" + server.getLocalPort() + "/test").subscribe(subscriber);
+        subscriber.subscription.request(2);
+        Thread.sleep(500);
+        synchronized (subscriber){
+            assertEquals(2, subscriber.messages.size());
+            assertFalse(subscriber.completed);
+        }
+        subscriber.subscription.request(10);
+        synchronized (subscriber){
+            long deadline = System.currentTimeMillis() + 5000;
+            while (!subscriber.completed && System.currentTimeMillis() < deadline){
+                subscriber.wait(100);
+            }
+            assertTrue(subscriber.completed);
+            assertEquals(3, subscriber.messages.size());
+            assertEquals("hello", subscriber.messages.get(2).getEvent());
+        }
+    }
+
+    public void testDuplicatesDontUseDemand() throws Exception{
+        serveMessages("1", "1", "2");
+        RecordingSubscriber subscriber = new RecordingSubscriber();
+        WorkerPublisher publisher = new WorkerPublisher("wr://token@127.0.0.1:" + server.getLocalPort() + "/test");
+        publisher.setDuplicateFilter(new DuplicateFilter(new MessageIdExtractor() {
+            public String extract(Message message) {
+                return message.getData().get("n");
+            }
+        }, 100, 60000));
+        publisher.subscribe(subscriber);
+        subscriber.subscription.request(2);
+        synchronized (subscriber){
+            long deadline = System.currentTimeMillis() + 5000;
+            while (subscriber.messages.size() < 2 && System.currentTimeMillis() < deadline){
+                subscriber.wait(100);
+            }
+            assertEquals(2, subscriber.messages.size());
+            assertEquals("1", subscriber.messages.get(0).getData().get("n"));
+            assertEquals("2", subscriber.messages.get(1).getData().get("n"));
+            assertFalse(subscriber.completed);
+        }
+        assertEquals(1, publisher.getDuplicateFilter().getDuplicates());
+    }
+
+    public void testHeartbeatsAndCancelsOnQuietConnection() throws Exception{
+        final List<String> lines = new ArrayList<String>();
+        final boolean[] closed = {false};
+        new Thread(new Runnable() {
+            public void run() {
+                try {
+                    Socket conn = server.accept();
+                    BufferedReader in = new BufferedReader(new InputStreamReader(conn.getInputStream()));
+                    String line;
+                    while ((line = in.readLine()) != null){
+                        synchronized (lines){
+                            lines.add(line);
+                        }
+                    }
+                } catch (Exception e) {
+                    // closed
+                }
+                synchronized (lines){
+                    closed[0] = true;
+                    lines.notifyAll();
+                }
+            }
+        }).start();
+        RecordingSubscriber subscriber = new RecordingSubscriber();
+        WorkerPublisher publisher = new WorkerPublisher("wr://token@127.0.0.1:" + server.getLocalPort() + "/test");
+        assertFalse(publisher.isReady());
+        publisher.subscribe(subscriber);
+        subscriber.subscription.request(1);
+        Thread.sleep(1500);
+        synchronized (lines){
+            assertTrue(lines.contains("RD"));
+            assertTrue(lines.contains("HB"));
+            assertFalse(closed[0]);
+        }
+        assertTrue(publisher.isReady());
+        subscriber.subscription.cancel();
+        synchronized (lines){
+            long deadline = System.currentTimeMillis() + 3000;
+            while (!closed[0] && System.currentTimeMillis() < deadline){
+                lines.wait(100);
+            }
+            assertTrue(closed[0]);
+            assertTrue(lines.contains("QT"));
+        }
+        assertFalse(publisher.isReady());
+    }
+
+    private static class RecordingSubscriber implements Flow.Subscriber<Message> {
+        volatile Flow.Subscription subscription;
+        List<Message> messages = new ArrayList<Message>();
+        boolean completed = false;
+
+        public void onSubscribe(Flow.Subscription s){
+            subscription = s;
+        }
+
+        public synchronized void onNext(Message message){
+            messages.add(message);
+            notifyAll();
+        }
+
+        public synchronized void onError(Throwable t){
+            notifyAll();
+        }
+
+        public synchronized void onComplete(){
+            completed = true;
+            notifyAll();
+        }
+    }
+}